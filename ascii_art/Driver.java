@@ -9,8 +9,9 @@ import java.util.logging.Logger;
 
 public class Driver {
     public static void main(String[] args) throws Exception {
-        if (args.length != 1) {
-            System.err.println("USAGE: java asciiArt ");
+        System.setProperty("java.awt.headless", "true"); // no display needed, skips toolkit initialization
+        if (args.length != 1 && args.length != 2) {
+            System.err.println("USAGE: java asciiArt <image> [script]");
             return;
         }
         Image img = Image.fromFile(args[0]);
@@ -18,6 +19,10 @@ public class Driver {
             Logger.getGlobal().severe("Failed to open image file " + args[0]);
             return;
         }
+        if (args.length == 2) { // run commands from a script file
+            new Shell(img).runScript(args[1]);
+            return;
+        }
         new Shell(img).run();
     }
 }
@@ -0,0 +1,140 @@
+package ascii_art;
+
+import ascii_art.img_to_char.BrightnessImgCharMatcher;
+import ascii_art.img_to_char.CharsetModel;
+import ascii_output.AsciiOutput;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A package-private class of the package ascii_art.
+ * Renders the render commands of a script concurrently, rendering identical (charset, resolution) pairs
+ * only once and skipping renders whose file is written again by a later command, and writes the outputs in
+ * the order of the commands.
+ *
+ * @author Aviel Raclaw
+ */
+class ScriptRenderer {
+    // constants
+    private static final String KEY_SEPARATOR = " ";
+    private static final String RENDER_ERR_MSG = "Did not render due to error: ";
+
+    // fields
+    private final BrightnessImgCharMatcher artCreator;
+    private final ExecutorService executor;
+    private final ArrayList<ScheduledRender> scheduledRenders = new ArrayList<>(); // in command order
+
+    /**
+     * a render command waiting to be rendered
+     */
+    private static final class ScheduledRender {
+        private final String key; // identifies the render, equal for identical renders
+        private final CharsetModel charsetModel;
+        private final int charsInRow;
+        private final boolean adaptive;
+        private final String fileName; // null when not rendering to a file
+        private final AsciiOutput output;
+
+        private ScheduledRender(String key, CharsetModel charsetModel, int charsInRow, boolean adaptive,
+                                String fileName, AsciiOutput output) {
+            this.key = key;
+            this.charsetModel = charsetModel;
+            this.charsInRow = charsInRow;
+            this.adaptive = adaptive;
+            this.fileName = fileName;
+            this.output = output;
+        }
+    }
+
+    /**
+     * constructor
+     *
+     * @param artCreator creates the art from the image
+     * @param numThreads number of renders to run at once
+     */
+    ScriptRenderer(BrightnessImgCharMatcher artCreator, int numThreads) {
+        this.artCreator = artCreator;
+        executor = Executors.newFixedThreadPool(numThreads);
+    }
+
+    /**
+     * schedules a render command. The character set model is built on the calling thread, so glyphs are
+     * never rendered concurrently; only the rendering of the image runs in the background.
+     *
+     * @param charSet    sorted characters to use in rendering
+     * @param charsInRow number of characters in a row
+     * @param adaptive   true to render adaptively
+     * @param fileName   file the output writes to, or null if it does not write to a file
+     * @param output     where to write the ASCII art
+     */
+    void schedule(Character[] charSet, int charsInRow, boolean adaptive, String fileName,
+                  AsciiOutput output) {
+        StringBuilder key = new StringBuilder().append(charsInRow).append(KEY_SEPARATOR)
+                .append(adaptive).append(KEY_SEPARATOR);
+        for (char c : charSet) {
+            key.append(c);
+        }
+        scheduledRenders.add(new ScheduledRender(key.toString(), artCreator.getCharsetModel(charSet),
+                charsInRow, adaptive, fileName, output));
+    }
+
+    /**
+     * renders the scheduled commands and writes their outputs in order, each as soon as its render is done.
+     * A render whose file is written again by a later command is skipped, and a failed render is reported
+     * and skipped.
+     *
+     * @throws InterruptedException if interrupted while waiting for a render
+     */
+    void finish() throws InterruptedException {
+        HashMap<String, Integer> lastWrite = new HashMap<>(); // last command writing to each file
+        for (int i = 0; i < scheduledRenders.size(); i++) {
+            if (scheduledRenders.get(i).fileName != null) {
+                lastWrite.put(scheduledRenders.get(i).fileName, i);
+            }
+        }
+        HashMap<String, Future<char[][]>> renderJobs = new HashMap<>(); // distinct jobs
+        ArrayList<Future<char[][]>> renders = new ArrayList<>(); // job of each command, null if skipped
+        for (int i = 0; i < scheduledRenders.size(); i++) {
+            ScheduledRender scheduled = scheduledRenders.get(i);
+            if (scheduled.fileName != null && lastWrite.get(scheduled.fileName) != i) {
+                renders.add(null); // overwritten later
+                continue;
+            }
+            Future<char[][]> render = renderJobs.get(scheduled.key);
+            if (render == null) { // first time this render is requested
+                if (scheduled.adaptive) {
+                    render = executor.submit(() -> artCreator.chooseCharsAdaptive(scheduled.charsInRow,
+                            scheduled.charsetModel));
+                } else {
+                    render = executor.submit(() -> artCreator.chooseChars(scheduled.charsInRow,
+                            scheduled.charsetModel));
+                }
+                renderJobs.put(scheduled.key, render);
+            }
+            renders.add(render);
+        }
+        for (int i = 0; i < renders.size(); i++) {
+            if (renders.get(i) == null) {
+                continue;
+            }
+            try {
+                scheduledRenders.get(i).output.output(renders.get(i).get());
+            } catch (ExecutionException e) {
+                System.out.println(RENDER_ERR_MSG + e.getCause());
+            }
+        }
+    }
+
+    /**
+     * stops the threads, dropping renders that did not finish. Must be called even if the script failed,
+     * or the threads keep the program running.
+     */
+    void close() {
+        executor.shutdownNow();
+    }
+}
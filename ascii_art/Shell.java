@@ -1,10 +1,16 @@
 package ascii_art;
 
 import ascii_art.img_to_char.BrightnessImgCharMatcher;
+import ascii_output.AsciiOutput;
+import ascii_output.BinaryAsciiOutput;
 import ascii_output.ConsoleAsciiOutput;
 import ascii_output.HtmlAsciiOutput;
 import image.Image;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.Scanner;
 import java.util.TreeSet;
 
@@ -48,9 +54,16 @@ public class Shell {
     public static final String WIDTH_SET_TO = "Width set to ";
     public static final String CONSOLE = "console";
     public static final String INPUT_ERR_MSG = "Did not executed due to incorrect command";
+    public static final String SCRIPT_ERR_MSG = "Did not execute due to error: ";
     public static final String RENDER = "render";
+    public static final String RENDER_TO = "render ";
+    public static final int RENDER_TO_LENGTH = 7;
     public static final String DEFAULT_FONT = "Courier New";
     public static final String HTML_FILE_NAME = "out.html";
+    public static final String BINARY = "binary";
+    public static final String BINARY_FILE_NAME = "out.aart";
+    public static final String ADAPTIVE = "adaptive";
+    public static final String UNIFORM = "uniform";
 
     //fields
     private final Image image;
@@ -58,6 +71,9 @@ public class Shell {
     private final int maxCharsInRow;
     private int charsInRow;
     private boolean consoleFlag = false;
+    private boolean binaryFlag = false;
+    private boolean adaptiveFlag = false;
+    private ScriptRenderer scriptRenderer = null; // not null only while running a script
 
     /**
      * Shell constructor
@@ -77,10 +93,7 @@ public class Shell {
     public void run() {
         Scanner scanner = new Scanner(System.in);
         String userInput;
-        TreeSet<Character> charSet = new TreeSet<>();
-        for (int i = ZERO_CHARACTER; i < TEN_CHARACTER; i++) {
-            charSet.add((char) i); //adds default characters
-        }
+        TreeSet<Character> charSet = getDefaultCharSet();
         BrightnessImgCharMatcher artCreator = new BrightnessImgCharMatcher(image, DEFAULT_FONT);
         while (true) { //get input until exit is input
             System.out.print(AWAITING_INPUT);
@@ -91,6 +104,49 @@ public class Shell {
         }
     }
 
+    /**
+     * runs the commands of a script file without user interaction. All commands are read up front, renders
+     * run concurrently, and the outputs are written in the order of the render commands.
+     *
+     * @param scriptFileName path to a file with one command per line
+     * @throws IOException          if the script file could not be read
+     * @throws InterruptedException if interrupted while waiting for a render
+     */
+    public void runScript(String scriptFileName) throws IOException, InterruptedException {
+        List<String> commands = Files.readAllLines(Paths.get(scriptFileName));
+        TreeSet<Character> charSet = getDefaultCharSet();
+        BrightnessImgCharMatcher artCreator = new BrightnessImgCharMatcher(image, DEFAULT_FONT);
+        scriptRenderer = new ScriptRenderer(artCreator, Runtime.getRuntime().availableProcessors());
+        try {
+            for (String command : commands) {
+                try {
+                    if (!userInputDelegator(command, charSet, artCreator)) {
+                        break;
+                    }
+                } catch (RuntimeException e) { // report and go on to the next command
+                    System.out.println(SCRIPT_ERR_MSG + command + " (" + e.getMessage() + ")");
+                }
+            }
+            scriptRenderer.finish();
+        } finally {
+            scriptRenderer.close();
+            scriptRenderer = null;
+        }
+    }
+
+    /**
+     * creates the character set used at startup
+     *
+     * @return set of default characters
+     */
+    private static TreeSet<Character> getDefaultCharSet() {
+        TreeSet<Character> charSet = new TreeSet<>();
+        for (int i = ZERO_CHARACTER; i < TEN_CHARACTER; i++) {
+            charSet.add((char) i); //adds default characters
+        }
+        return charSet;
+    }
+
     /**
      * delegates to other functions based on user input
      *
@@ -122,9 +178,23 @@ public class Shell {
             }
         } else if (userInput.equals(CONSOLE)) { // console
             consoleFlag = true;
+            binaryFlag = false;
+            return true;
+        } else if (userInput.equals(BINARY)) { // binary
+            binaryFlag = true;
+            consoleFlag = false;
+            return true;
+        } else if (userInput.equals(ADAPTIVE)) { // adaptive
+            adaptiveFlag = true;
+            return true;
+        } else if (userInput.equals(UNIFORM)) { // uniform
+            adaptiveFlag = false;
             return true;
         } else if (userInput.equals(RENDER)) { // render
-            renderASCIIArt(charSet, artCreator);
+            renderASCIIArt(charSet, artCreator, null);
+            return true;
+        } else if (userInput.startsWith(RENDER_TO) && userInput.length() > RENDER_TO_LENGTH) { // render file
+            renderASCIIArt(charSet, artCreator, userInput.substring(RENDER_TO_LENGTH));
             return true;
         }
         System.out.println(INPUT_ERR_MSG);
@@ -136,16 +206,26 @@ public class Shell {
      *
      * @param charSet    characters to use in rendering
      * @param artCreator creates the art from the image
+     * @param fileName   file to render to, or null for the default file. Ignored when rendering to console
      */
-    private void renderASCIIArt(TreeSet<Character> charSet, BrightnessImgCharMatcher artCreator) {
-        char[][] ASCIIArt = getASCIIArt(charSet, artCreator);
+    private void renderASCIIArt(TreeSet<Character> charSet, BrightnessImgCharMatcher artCreator,
+                                String fileName) {
+        AsciiOutput output;
         if (consoleFlag) { // render to console
-            ConsoleAsciiOutput output = new ConsoleAsciiOutput();
-            output.output(ASCIIArt);
+            fileName = null;
+            output = new ConsoleAsciiOutput();
+        } else if (binaryFlag) { // render to binary file
+            fileName = fileName == null ? BINARY_FILE_NAME : fileName;
+            output = new BinaryAsciiOutput(fileName);
         } else { // render to html
-            HtmlAsciiOutput output = new HtmlAsciiOutput(HTML_FILE_NAME, DEFAULT_FONT);
-            output.output(ASCIIArt);
+            fileName = fileName == null ? HTML_FILE_NAME : fileName;
+            output = new HtmlAsciiOutput(fileName, DEFAULT_FONT);
         }
+        if (scriptRenderer != null) { // running a script, render later
+            scriptRenderer.schedule(getCharArray(charSet), charsInRow, adaptiveFlag, fileName, output);
+            return;
+        }
+        output.output(getASCIIArt(charSet, artCreator));
     }
 
     /**
@@ -156,13 +236,26 @@ public class Shell {
      * @return 2-dimensional array of ASCII characters, representing the ASCII art
      */
     private char[][] getASCIIArt(TreeSet<Character> charSet, BrightnessImgCharMatcher artCreator) {
+        if (adaptiveFlag) {
+            return artCreator.chooseCharsAdaptive(charsInRow, getCharArray(charSet));
+        }
+        return artCreator.chooseChars(charsInRow, getCharArray(charSet));
+    }
+
+    /**
+     * copies the character set to an array
+     *
+     * @param charSet characters to copy
+     * @return sorted array of the characters
+     */
+    private static Character[] getCharArray(TreeSet<Character> charSet) {
         Character[] charArray = new Character[charSet.size()];
         int ind = 0;
         for (char c : charSet) {
             charArray[ind] = c; // add characters from charSet to a character array
             ind++;
         }
-        return artCreator.chooseChars(charsInRow, charArray);
+        return charArray;
     }
 
     /**
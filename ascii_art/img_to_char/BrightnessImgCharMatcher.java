@@ -3,7 +3,7 @@ package ascii_art.img_to_char;
 import image.Image;
 
 import java.awt.*;
-import java.util.*;
+import java.util.ArrayList;
 
 /**
  * class that matches ASCII characters based on brightness to sub-images of an image of colored pixels
@@ -19,11 +19,10 @@ public class BrightnessImgCharMatcher {
     public static final int MAX_RGB = 255;
 
     // fields
-    private final HashMap<Character, Double> characterToBrightness = new HashMap<>();
-    private final HashMap<Double, Character> brightnessToCharacter = new HashMap<>();
-    private final HashSet<Character> charactersAdded = new HashSet<>(); // characters already added
     private final image.Image img;
     private final String font;
+    private volatile CharsetModel charsetModel; // replaced, never mutated, when the charset changes
+    private volatile BrightnessQuadTree quadTree; // replaced by a refined tree when the tiles get smaller
 
     /**
      * constructor
@@ -36,37 +35,6 @@ public class BrightnessImgCharMatcher {
         this.font = font;
     }
 
-    /**
-     * calculate character's brightness
-     *
-     * @param c character
-     * @return sum of true's divided by total
-     */
-    private double getCharBrightness(char c) {
-        int numOfTrue = 0;
-        for (boolean[] row : CharRenderer.getImg(c, PIXELS, font)) {
-            for (boolean i : row) {
-                if (i) {
-                    numOfTrue++;
-                }
-            }
-        }
-        return (double) numOfTrue / (PIXELS * PIXELS);
-    }
-
-    /**
-     * normalize brightness
-     *
-     * @param charBrightness original brightness
-     * @param minBrightness  minimum brightness of all characters
-     * @param maxBrightness  max brightness of all characters
-     * @return normalized value
-     */
-    private double normalizeCharBrightness(double charBrightness, double minBrightness,
-                                           double maxBrightness) {
-        return (charBrightness - minBrightness) / (maxBrightness - minBrightness);
-    }
-
     /**
      * calculate brightness of sub-image
      *
@@ -83,25 +51,20 @@ public class BrightnessImgCharMatcher {
     }
 
     /**
-     * find the closest value of brightness from characters to brightness of sub-image
+     * gets a model of the given character set, building and publishing a new one only if the character
+     * set changed since the last call. Safe to call from several threads.
      *
-     * @param brightness              brightness of sub-image
-     * @param normalizedBrightnessSet set of brightnesses of characters
-     * @return closest brightness
+     * @param charSet set of characters to use
+     * @return model of the character set
      */
-    private double getMostSuitableBrightness(double brightness, TreeSet<Double> normalizedBrightnessSet) {
-        Double floor = normalizedBrightnessSet.floor(brightness);
-        Double ceiling = normalizedBrightnessSet.ceiling(brightness);
-        if (floor == null) {
-            return ceiling;
-        }
-        if (ceiling == null) {
-            return floor;
+    public CharsetModel getCharsetModel(Character[] charSet) {
+        CharsetModel model = charsetModel;
+        // copy on write, readers keep their snapshot; the same model is returned if the charset is unchanged
+        CharsetModel newModel = model == null ? CharsetModel.of(font, charSet) : model.withCharSet(charSet);
+        if (newModel != model) {
+            charsetModel = newModel;
         }
-        if (ceiling - brightness <= brightness - floor) {
-            return ceiling;
-        }
-        return floor;
+        return newModel;
     }
 
     /**
@@ -112,31 +75,26 @@ public class BrightnessImgCharMatcher {
      * @return 2-dimensional character array of character representing image
      */
     public char[][] chooseChars(int numCharsInRow, Character[] charSet) {
-        //set up characters
-        ArrayList<Character> filteredCharSet = new ArrayList<>();
-        for (char c : charSet) {
-            if (!charactersAdded.contains(c)) {
-                filteredCharSet.add(c);
-            }
-        }
-        TreeSet<Double> notNormalizedBrightnessSet = new TreeSet<>();
-        HashMap<Double, Double> normalizedToBrightness = new HashMap<>();
-        TreeSet<Double> normalizedBrightnessSet = new TreeSet<>();
-        setUpCharacters(filteredCharSet, charSet, notNormalizedBrightnessSet,
-                normalizedToBrightness, normalizedBrightnessSet);
+        return chooseChars(numCharsInRow, getCharsetModel(charSet));
+    }
 
+    /**
+     * choose characters to put in place of sub-images, using an already built character set model.
+     * Does not modify this object, so it may be called concurrently.
+     *
+     * @param numCharsInRow number of characters to put in row
+     * @param charsetModel  model of the characters to use
+     * @return 2-dimensional character array of character representing image
+     */
+    public char[][] chooseChars(int numCharsInRow, CharsetModel charsetModel) {
         int subImageSize = img.getWidth() / numCharsInRow;
         int numCharsInCol = img.getHeight() / (subImageSize);
         char[][] ASCIIImage = new char[numCharsInCol][numCharsInRow];
 
         ArrayList<ArrayList<Color>> subImages = img.getSubImageDivision(subImageSize);
-        double subImageBrightness, suitableCharBrightness;
         int charRow = 0, charCol = 0;
         for (ArrayList<Color> subImage : subImages) {
-            subImageBrightness = getSubImageBrightness(subImage);
-            suitableCharBrightness = normalizedToBrightness.get(getMostSuitableBrightness(subImageBrightness,
-                    normalizedBrightnessSet));
-            ASCIIImage[charRow][charCol] = brightnessToCharacter.get(suitableCharBrightness);
+            ASCIIImage[charRow][charCol] = charsetModel.getMostSuitableChar(getSubImageBrightness(subImage));
             charCol++;
             if (charCol == numCharsInRow) {
                 charCol = 0;
@@ -147,37 +105,57 @@ public class BrightnessImgCharMatcher {
     }
 
     /**
-     * sets up the characters
+     * choose characters to put in place of sub-images, adaptively: regions of the image whose brightness
+     * bounds all match the same character are filled at once, and only regions crossing a boundary between
+     * characters are divided down to the size of a sub-image.
+     * The result is the same as chooseChars, which it falls back to if the sub-images do not evenly divide
+     * the image into powers of 2.
      *
-     * @param filteredCharSet            filtered set characters that haven't been added yet
-     * @param charSet                    set of characters to use
-     * @param notNormalizedBrightnessSet set of original brightness values
-     * @param normalizedToBrightness     maps normalized values to original values
-     * @param normalizedBrightnessSet    normalized brightness set
+     * @param numCharsInRow number of characters to put in row
+     * @param charSet       set of characters to use
+     * @return 2-dimensional character array of character representing image
      */
-    private void setUpCharacters(ArrayList<Character> filteredCharSet, Character[] charSet,
-                                 TreeSet<Double> notNormalizedBrightnessSet,
-                                 HashMap<Double, Double> normalizedToBrightness,
-                                 TreeSet<Double> normalizedBrightnessSet) {
-        double charBrightness;
-        for (char c : filteredCharSet) { //adds characters to database
-            charactersAdded.add(c);
-            charBrightness = getCharBrightness(c);
-            characterToBrightness.put(c, charBrightness);
-            brightnessToCharacter.put(charBrightness, c);
-        }
-        for (char c : charSet) { // adds requested character brightnesses to set
-            notNormalizedBrightnessSet.add(characterToBrightness.get(c));
+    public char[][] chooseCharsAdaptive(int numCharsInRow, Character[] charSet) {
+        return chooseCharsAdaptive(numCharsInRow, getCharsetModel(charSet));
+    }
+
+    /**
+     * choose characters to put in place of sub-images adaptively, using an already built character set
+     * model. May be called concurrently.
+     *
+     * @param numCharsInRow number of characters to put in row
+     * @param charsetModel  model of the characters to use
+     * @return 2-dimensional character array of character representing image
+     */
+    public char[][] chooseCharsAdaptive(int numCharsInRow, CharsetModel charsetModel) {
+        int subImageSize = img.getWidth() / numCharsInRow;
+        if (subImageSize == 0 || Integer.bitCount(subImageSize) != 1 ||
+                img.getWidth() % subImageSize != 0 || img.getHeight() % subImageSize != 0) {
+            return chooseChars(numCharsInRow, charsetModel);
         }
+        return getQuadTree(subImageSize).chooseChars(subImageSize, charsetModel);
+    }
 
-        double maxBrightness = notNormalizedBrightnessSet.last();
-        double minBrightness = notNormalizedBrightnessSet.first();
-        double normalizedBrightness;
-        for (double brightness : notNormalizedBrightnessSet) {
-            normalizedBrightness = normalizeCharBrightness(brightness, minBrightness, maxBrightness);
-            normalizedBrightnessSet.add(normalizedBrightness);
-            //maps normalized brightnesses to original brightnesses
-            normalizedToBrightness.put(normalizedBrightness, brightness);
+    /**
+     * gets a quadtree of the image with leaves no bigger than the given size, building it on first use and
+     * refining it, instead of reading the whole image again, when smaller leaves are needed
+     *
+     * @param leafSize size of the smallest squares needed
+     * @return the quadtree
+     */
+    private BrightnessQuadTree getQuadTree(int leafSize) {
+        BrightnessQuadTree tree = quadTree;
+        if (tree == null || tree.getLeafSize() > leafSize) {
+            synchronized (this) { // build once, even if several renders need it at the same time
+                tree = quadTree;
+                if (tree == null) {
+                    tree = new BrightnessQuadTree(img, leafSize);
+                } else if (tree.getLeafSize() > leafSize) {
+                    tree = tree.refine(leafSize);
+                }
+                quadTree = tree;
+            }
         }
+        return tree;
     }
 }
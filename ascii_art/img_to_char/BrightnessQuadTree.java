@@ -0,0 +1,285 @@
+package ascii_art.img_to_char;
+
+import image.Image;
+
+import java.awt.*;
+import java.util.BitSet;
+
+/**
+ * A package-private class of the package img_to_char.
+ * Immutable quadtree of the brightness of an image whose dimensions are powers of 2. Every square holds the
+ * smallest and largest brightness of the leaf-sized squares inside it, so a whole region can be matched to
+ * a single character when both bounds match the same one, and only regions that cross a boundary between
+ * characters are divided further. The squares of each level are kept in flat arrays, row by row; the
+ * leaf-sized squares themselves are not kept, only the level above them. Squares of a single color are
+ * marked, and the squares inside them are not kept up to date.
+ *
+ * @author Aviel Raclaw
+ */
+final class BrightnessQuadTree {
+    // constants
+    private static final int NUM_CHILDREN = 4;
+    private static final int HALF = 2;
+    private static final double BOUND_TOLERANCE = 1e-9; // covers rounding differences in brightness sums
+
+    // fields
+    private final Image img;
+    private final int leafSize; // size of the smallest squares
+    private final int rootSize; // the image is covered by a row or a column of square roots
+    private final int topLevel; // level of the roots, -1 if the roots are leaves
+    private final double[][] minBrightness; // by level, then square; level 0 holds squares of twice leafSize
+    private final double[][] maxBrightness;
+    private final BitSet[] constant; // by level, squares whose pixels all have the same brightness
+
+    /**
+     * constructor, reads all pixels of the image once
+     *
+     * @param img      image with dimensions that are powers of 2
+     * @param leafSize size of the smallest squares, a power of 2
+     */
+    BrightnessQuadTree(Image img, int leafSize) {
+        this(img, leafSize, null);
+    }
+
+    /**
+     * constructor, reads the pixels of the image that the coarser tree cannot tell about
+     *
+     * @param img      image with dimensions that are powers of 2
+     * @param leafSize size of the smallest squares, a power of 2
+     * @param coarser  tree of the same image with bigger leaves, or null to read all pixels
+     */
+    private BrightnessQuadTree(Image img, int leafSize, BrightnessQuadTree coarser) {
+        this.img = img;
+        this.leafSize = leafSize;
+        rootSize = Math.min(img.getWidth(), img.getHeight());
+        topLevel = Integer.numberOfTrailingZeros(rootSize / leafSize) - 1;
+        minBrightness = new double[topLevel + 1][];
+        maxBrightness = new double[topLevel + 1][];
+        constant = new BitSet[topLevel + 1];
+        for (int level = 0; level <= topLevel; level++) {
+            int numSquares = (img.getWidth() / getSquareSize(level)) * (img.getHeight() / getSquareSize(level));
+            minBrightness[level] = new double[numSquares];
+            maxBrightness[level] = new double[numSquares];
+            constant[level] = new BitSet(numSquares);
+        }
+        if (topLevel < 0) {
+            return; // nothing above the leaves, tiles are matched from their pixels
+        }
+        for (int row = 0; row < img.getHeight(); row += rootSize) {
+            for (int col = 0; col < img.getWidth(); col += rootSize) {
+                build(topLevel, row, col, coarser);
+            }
+        }
+    }
+
+    /**
+     * @return size of the smallest squares of the tree
+     */
+    int getLeafSize() {
+        return leafSize;
+    }
+
+    /**
+     * creates a tree with smaller leaves. Only the pixels of squares that are not of a single color are read
+     * again, and this tree is left untouched.
+     *
+     * @param newLeafSize new size of the smallest squares, smaller than the current one
+     * @return the refined tree
+     */
+    BrightnessQuadTree refine(int newLeafSize) {
+        return new BrightnessQuadTree(img, newLeafSize, this);
+    }
+
+    /**
+     * chooses a character for every tile of the image. A region whose brightness bounds match the same
+     * character is filled with it at once; the brightness of a tile is calculated from its pixels only when
+     * its bounds match different characters. The result is the same as matching every tile separately.
+     *
+     * @param tileSize     size of a tile, a power of 2 not smaller than the leaf size
+     * @param charsetModel model of the characters to use
+     * @return 2-dimensional character array of character representing image
+     */
+    char[][] chooseChars(int tileSize, CharsetModel charsetModel) {
+        char[][] ASCIIImage = new char[img.getHeight() / tileSize][img.getWidth() / tileSize];
+        for (int row = 0; row < img.getHeight(); row += rootSize) {
+            for (int col = 0; col < img.getWidth(); col += rootSize) {
+                fill(ASCIIImage, topLevel, row, col, tileSize, charsetModel);
+            }
+        }
+        return ASCIIImage;
+    }
+
+    /**
+     * fills the tiles of a square with characters
+     *
+     * @param ASCIIImage   character array to fill
+     * @param level        level of the square, -1 for a leaf
+     * @param row          top row of the square
+     * @param col          left column of the square
+     * @param tileSize     size of a tile
+     * @param charsetModel model of the characters to use
+     */
+    private void fill(char[][] ASCIIImage, int level, int row, int col, int tileSize,
+                      CharsetModel charsetModel) {
+        int size = getSquareSize(level);
+        boolean isConstant = false;
+        if (level >= 0) {
+            // matching is monotonic, so if both bounds match the same character every tile inside does
+            int index = getIndex(level, row, col);
+            isConstant = constant[level].get(index);
+            char c = charsetModel.getMostSuitableChar(minBrightness[level][index] - BOUND_TOLERANCE);
+            if (c == charsetModel.getMostSuitableChar(maxBrightness[level][index] + BOUND_TOLERANCE)) {
+                for (int charRow = row / tileSize; charRow < (row + size) / tileSize; charRow++) {
+                    for (int charCol = col / tileSize; charCol < (col + size) / tileSize; charCol++) {
+                        ASCIIImage[charRow][charCol] = c;
+                    }
+                }
+                return;
+            }
+        }
+        if (isConstant || size == tileSize) { // match each tile from its pixels
+            for (int tileRow = row; tileRow < row + size; tileRow += tileSize) {
+                for (int tileCol = col; tileCol < col + size; tileCol += tileSize) {
+                    ASCIIImage[tileRow / tileSize][tileCol / tileSize] =
+                            charsetModel.getMostSuitableChar(getSquareBrightness(tileRow, tileCol, tileSize));
+                }
+            }
+            return;
+        }
+        int half = size / HALF;
+        for (int i = 0; i < NUM_CHILDREN; i++) {
+            fill(ASCIIImage, level - 1, row + (i / HALF) * half, col + (i % HALF) * half, tileSize,
+                    charsetModel);
+        }
+    }
+
+    /**
+     * calculates the bounds of a square and of the squares inside it
+     *
+     * @param level   level of the square
+     * @param row     top row of the square
+     * @param col     left column of the square
+     * @param coarser tree with bigger leaves whose squares of a single color are not read again, or null
+     */
+    private void build(int level, int row, int col, BrightnessQuadTree coarser) {
+        int size = getSquareSize(level);
+        int index = getIndex(level, row, col);
+        int coarserLevel = coarser == null ? -1 : coarser.getLevel(size);
+        if (coarserLevel >= 0) {
+            int coarserIndex = coarser.getIndex(coarserLevel, row, col);
+            if (coarser.constant[coarserLevel].get(coarserIndex)) { // its leaves are all of the same brightness
+                minBrightness[level][index] = coarser.minBrightness[coarserLevel][coarserIndex];
+                maxBrightness[level][index] = minBrightness[level][index];
+                constant[level].set(index);
+                return;
+            }
+        }
+        if (level == 0) {
+            buildFromPixels(row, col);
+            return;
+        }
+        int half = size / HALF;
+        double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+        boolean isConstant = true;
+        for (int i = 0; i < NUM_CHILDREN; i++) {
+            int childRow = row + (i / HALF) * half, childCol = col + (i % HALF) * half;
+            build(level - 1, childRow, childCol, coarser);
+            int childIndex = getIndex(level - 1, childRow, childCol);
+            min = Math.min(min, minBrightness[level - 1][childIndex]);
+            max = Math.max(max, maxBrightness[level - 1][childIndex]);
+            isConstant &= constant[level - 1].get(childIndex);
+        }
+        minBrightness[level][index] = min;
+        maxBrightness[level][index] = max;
+        constant[level].set(index, isConstant && min == max);
+    }
+
+    /**
+     * calculates the bounds of a square of level 0 from the pixels of its leaves, reading each pixel once
+     *
+     * @param row top row of the square
+     * @param col left column of the square
+     */
+    private void buildFromPixels(int row, int col) {
+        double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+        double firstGreyness = getPixelGreyness(img.getPixel(row, col));
+        boolean isConstant = true;
+        for (int i = 0; i < NUM_CHILDREN; i++) {
+            int leafRow = row + (i / HALF) * leafSize, leafCol = col + (i % HALF) * leafSize;
+            double totalGreyness = 0;
+            for (int pixelRow = leafRow; pixelRow < leafRow + leafSize; pixelRow++) {
+                for (int pixelCol = leafCol; pixelCol < leafCol + leafSize; pixelCol++) {
+                    double greyness = getPixelGreyness(img.getPixel(pixelRow, pixelCol));
+                    totalGreyness += greyness;
+                    isConstant &= greyness == firstGreyness;
+                }
+            }
+            // the same arithmetic as the brightness of a sub-image
+            double brightness = totalGreyness / (leafSize * leafSize * BrightnessImgCharMatcher.MAX_RGB);
+            min = Math.min(min, brightness);
+            max = Math.max(max, brightness);
+        }
+        int index = getIndex(0, row, col);
+        minBrightness[0][index] = min;
+        maxBrightness[0][index] = max;
+        constant[0].set(index, isConstant);
+    }
+
+    /**
+     * calculate brightness of a square of the image, the same way as the brightness of a sub-image
+     *
+     * @param row  top row of the square
+     * @param col  left column of the square
+     * @param size size of the square
+     * @return brightness of the square
+     */
+    private double getSquareBrightness(int row, int col, int size) {
+        double totalGreyness = 0;
+        for (int pixelRow = row; pixelRow < row + size; pixelRow++) {
+            for (int pixelCol = col; pixelCol < col + size; pixelCol++) {
+                totalGreyness += getPixelGreyness(img.getPixel(pixelRow, pixelCol));
+            }
+        }
+        return totalGreyness / (size * size * BrightnessImgCharMatcher.MAX_RGB);
+    }
+
+    /**
+     * calculate greyness of a pixel
+     *
+     * @param pixel pixel
+     * @return greyness between 0 and MAX_RGB
+     */
+    private static double getPixelGreyness(Color pixel) {
+        return pixel.getRed() * BrightnessImgCharMatcher.RED_PERCENTAGE_OF_GREY +
+                pixel.getGreen() * BrightnessImgCharMatcher.GREEN_PERCENTAGE_OF_GREY +
+                pixel.getBlue() * BrightnessImgCharMatcher.BLUE_PERCENTAGE_OF_GREY;
+    }
+
+    /**
+     * @param level level of a square, -1 for a leaf
+     * @return size of the squares of the level
+     */
+    private int getSquareSize(int level) {
+        return leafSize << (level + 1);
+    }
+
+    /**
+     * @param size size of a square
+     * @return level of the squares of the size, -1 if the tree has no such level
+     */
+    private int getLevel(int size) {
+        int level = Integer.numberOfTrailingZeros(size / leafSize) - 1;
+        return size > leafSize && level <= topLevel ? level : -1;
+    }
+
+    /**
+     * @param level level of a square
+     * @param row   top row of the square
+     * @param col   left column of the square
+     * @return index of the square in the arrays of its level
+     */
+    private int getIndex(int level, int row, int col) {
+        int size = getSquareSize(level);
+        return (row / size) * (img.getWidth() / size) + col / size;
+    }
+}
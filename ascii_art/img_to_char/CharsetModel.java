@@ -0,0 +1,172 @@
+package ascii_art.img_to_char;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable, precompiled model of a character set: the brightness of every glyph rendered so far, and a
+ * sorted lookup table of the normalized brightnesses of the characters currently in use.
+ * Since it never changes after construction, one instance can be shared freely between threads.
+ *
+ * @author Aviel Raclaw
+ */
+public final class CharsetModel {
+    // fields
+    private final String font;
+    private final Map<Character, Double> glyphBrightness; // every glyph rendered so far, never mutated
+    private final char[] charSet; // characters in use, sorted
+    private final char[] lookupChars; // characters matching lookupBrightness, by index
+    private final double[] lookupBrightness; // normalized brightnesses, ascending and distinct
+
+    /**
+     * private constructor, use {@link #of(String, Character[])} or {@link #withCharSet(Character[])}
+     *
+     * @param font            font the glyphs were rendered in
+     * @param glyphBrightness brightness of every glyph rendered so far
+     * @param charSet         sorted characters in use
+     */
+    private CharsetModel(String font, Map<Character, Double> glyphBrightness, char[] charSet) {
+        this.font = font;
+        this.glyphBrightness = glyphBrightness;
+        this.charSet = charSet;
+
+        double minBrightness = Double.MAX_VALUE, maxBrightness = -Double.MAX_VALUE;
+        for (char c : charSet) {
+            minBrightness = Math.min(minBrightness, glyphBrightness.get(c));
+            maxBrightness = Math.max(maxBrightness, glyphBrightness.get(c));
+        }
+        // sort characters by brightness, keeping one character per distinct brightness
+        Character[] byBrightness = new Character[charSet.length];
+        for (int i = 0; i < charSet.length; i++) {
+            byBrightness[i] = charSet[i];
+        }
+        Arrays.sort(byBrightness, (a, b) -> Double.compare(glyphBrightness.get(a), glyphBrightness.get(b)));
+        char[] chars = new char[charSet.length];
+        double[] brightnesses = new double[charSet.length];
+        int size = 0;
+        for (char c : byBrightness) {
+            double normalized = normalizeCharBrightness(glyphBrightness.get(c), minBrightness, maxBrightness);
+            if (size > 0 && brightnesses[size - 1] == normalized) {
+                size--; // same brightness as previous character, the later (bigger) character replaces it
+            }
+            chars[size] = c;
+            brightnesses[size] = normalized;
+            size++;
+        }
+        lookupChars = Arrays.copyOf(chars, size);
+        lookupBrightness = Arrays.copyOf(brightnesses, size);
+    }
+
+    /**
+     * creates a model for a character set, rendering all of its glyphs
+     *
+     * @param font    font to use
+     * @param charSet set of characters to use
+     * @return the model
+     */
+    public static CharsetModel of(String font, Character[] charSet) {
+        return new CharsetModel(font, new HashMap<>(), new char[0]).withCharSet(charSet);
+    }
+
+    /**
+     * creates a model for another character set, in the same font. Glyphs already rendered by this model
+     * are reused, and this model is left untouched.
+     *
+     * @param charSet set of characters to use
+     * @return the new model, or this model if the character set is unchanged
+     */
+    public CharsetModel withCharSet(Character[] charSet) {
+        if (charSet.length == 0) {
+            throw new IllegalArgumentException("Character set must not be empty");
+        }
+        char[] sortedCharSet = toSortedArray(charSet);
+        if (Arrays.equals(this.charSet, sortedCharSet)) {
+            return this;
+        }
+        Map<Character, Double> newGlyphBrightness = glyphBrightness;
+        for (char c : charSet) {
+            if (!newGlyphBrightness.containsKey(c)) {
+                if (newGlyphBrightness == glyphBrightness) { // copy on first write
+                    newGlyphBrightness = new HashMap<>(glyphBrightness);
+                }
+                newGlyphBrightness.put(c, getCharBrightness(c));
+            }
+        }
+        return new CharsetModel(font, newGlyphBrightness, sortedCharSet);
+    }
+
+    /**
+     * find the character whose normalized brightness is closest to the given brightness.
+     * Ties are broken in favor of the brighter character.
+     *
+     * @param brightness brightness of sub-image
+     * @return most suitable character
+     */
+    public char getMostSuitableChar(double brightness) {
+        int index = Arrays.binarySearch(lookupBrightness, brightness);
+        if (index >= 0) {
+            return lookupChars[index];
+        }
+        int ceiling = -index - 1;
+        if (ceiling == 0) {
+            return lookupChars[0];
+        }
+        if (ceiling == lookupBrightness.length) {
+            return lookupChars[lookupBrightness.length - 1];
+        }
+        int floor = ceiling - 1;
+        if (lookupBrightness[ceiling] - brightness <= brightness - lookupBrightness[floor]) {
+            return lookupChars[ceiling];
+        }
+        return lookupChars[floor];
+    }
+
+    /**
+     * calculate character's brightness, from the precomputed glyph tables when possible
+     *
+     * @param c character
+     * @return sum of true's divided by total
+     */
+    private double getCharBrightness(char c) {
+        int pixels = BrightnessImgCharMatcher.PIXELS;
+        return (double) GlyphTable.getNumOfTrue(c, pixels, font) / (pixels * pixels);
+    }
+
+    /**
+     * normalize brightness
+     *
+     * @param charBrightness original brightness
+     * @param minBrightness  minimum brightness of all characters
+     * @param maxBrightness  max brightness of all characters
+     * @return normalized value, 0 if all characters are equally bright
+     */
+    private static double normalizeCharBrightness(double charBrightness, double minBrightness,
+                                                  double maxBrightness) {
+        if (maxBrightness == minBrightness) {
+            return 0;
+        }
+        return (charBrightness - minBrightness) / (maxBrightness - minBrightness);
+    }
+
+    /**
+     * copies a character set to a sorted array without duplicates
+     *
+     * @param charSet set of characters
+     * @return sorted array of the characters
+     */
+    private static char[] toSortedArray(Character[] charSet) {
+        char[] sorted = new char[charSet.length];
+        for (int i = 0; i < charSet.length; i++) {
+            sorted[i] = charSet[i];
+        }
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, size);
+    }
+}
@@ -0,0 +1,144 @@
+package ascii_art.img_to_char;
+
+import java.awt.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Precomputed glyph densities, so that characters of common fonts can be matched without starting the AWT
+ * font subsystem. A table is a resource named after the font and the glyph size, holding for every printable
+ * ASCII character the number of pixels {@link CharRenderer} sets for it. Tables are generated by running this
+ * class on a machine that has the font installed.
+ *
+ * @author Aviel Raclaw
+ */
+public final class GlyphTable {
+    // constants
+    public static final int FIRST_CHAR = 32;
+    public static final int LAST_CHAR = 126;
+    private static final int NOT_IN_TABLE = -1;
+    private static final String RESOURCE_DIR = "glyphs/";
+    private static final String RESOURCE_SUFFIX = ".txt";
+    private static final String SEPARATOR = " ";
+    private static final String USAGE = "USAGE: java ascii_art.img_to_char.GlyphTable <font> [pixels]";
+    private static final String NO_TABLE_MSG = "No glyph table, glyphs will be rendered with AWT: ";
+    private static final String BAD_TABLE_MSG = "Unreadable glyph table, glyphs will be rendered with AWT: ";
+    private static final String NO_FONT_ERR_MSG = "Font is not installed, AWT would render another font: ";
+    private static final int[] NO_TABLE = new int[0];
+
+    // fields
+    private static final ConcurrentHashMap<String, int[]> tables = new ConcurrentHashMap<>();
+
+    private GlyphTable() {
+    }
+
+    /**
+     * gets the number of pixels set in a rendered character, from the precomputed tables if there is an
+     * entry for it, else by rendering it
+     *
+     * @param c        character
+     * @param pixels   size of the rendered glyph
+     * @param fontName font of the glyph
+     * @return number of pixels set
+     */
+    public static int getNumOfTrue(char c, int pixels, String fontName) {
+        int[] table = tables.computeIfAbsent(getResourceName(fontName, pixels), GlyphTable::load);
+        if (FIRST_CHAR <= c && c <= LAST_CHAR && table != NO_TABLE &&
+                table[c - FIRST_CHAR] != NOT_IN_TABLE) {
+            return table[c - FIRST_CHAR];
+        }
+        return renderNumOfTrue(c, pixels, fontName);
+    }
+
+    /**
+     * renders a character and counts the pixels set
+     *
+     * @param c        character
+     * @param pixels   size of the rendered glyph
+     * @param fontName font of the glyph
+     * @return number of pixels set
+     */
+    private static int renderNumOfTrue(char c, int pixels, String fontName) {
+        int numOfTrue = 0;
+        for (boolean[] row : CharRenderer.getImg(c, pixels, fontName)) {
+            for (boolean i : row) {
+                if (i) {
+                    numOfTrue++;
+                }
+            }
+        }
+        return numOfTrue;
+    }
+
+    /**
+     * loads a table resource, logging when there is none. Called once for each resource.
+     *
+     * @param resourceName name of the resource
+     * @return number of pixels set for each character from FIRST_CHAR, or NO_TABLE if there is no such table
+     */
+    private static int[] load(String resourceName) {
+        InputStream resource = GlyphTable.class.getResourceAsStream(resourceName);
+        if (resource == null) {
+            Logger.getGlobal().info(NO_TABLE_MSG + resourceName);
+            return NO_TABLE;
+        }
+        int[] table = new int[LAST_CHAR - FIRST_CHAR + 1];
+        Arrays.fill(table, NOT_IN_TABLE);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource,
+                StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = reader.readLine()) != null) { // lines of character code and pixels set
+                String[] entry = line.split(SEPARATOR);
+                table[Integer.parseInt(entry[0]) - FIRST_CHAR] = Integer.parseInt(entry[1]);
+            }
+        } catch (IOException | RuntimeException e) { // unreadable table, fall back to rendering
+            Logger.getGlobal().warning(BAD_TABLE_MSG + resourceName);
+            return NO_TABLE;
+        }
+        return table;
+    }
+
+    /**
+     * gets the resource name of a table, e.g. glyphs/DejaVu_Sans_Mono_16.txt
+     *
+     * @param fontName font of the table
+     * @param pixels   size of the glyphs
+     * @return resource name, relative to this class
+     */
+    private static String getResourceName(String fontName, int pixels) {
+        return RESOURCE_DIR + fontName.replace(' ', '_') + "_" + pixels + RESOURCE_SUFFIX;
+    }
+
+    /**
+     * generates a table by rendering the glyphs, and writes it to the file it is loaded from. Refuses fonts
+     * that are not installed, since AWT silently renders a fallback font instead.
+     *
+     * @param args font name, and optionally glyph size (default BrightnessImgCharMatcher.PIXELS)
+     * @throws IOException if writing the table failed
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1 && args.length != 2) {
+            System.err.println(USAGE);
+            return;
+        }
+        String fontName = args[0];
+        if (!Arrays.asList(GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames())
+                .contains(fontName)) {
+            System.err.println(NO_FONT_ERR_MSG + fontName);
+            return;
+        }
+        int pixels = args.length == 2 ? Integer.parseInt(args[1]) : BrightnessImgCharMatcher.PIXELS;
+        File file = new File(new File(GlyphTable.class.getPackageName().replace('.', File.separatorChar)),
+                getResourceName(fontName, pixels));
+        file.getParentFile().mkdirs();
+        try (PrintWriter writer = new PrintWriter(file, StandardCharsets.US_ASCII)) {
+            for (char c = FIRST_CHAR; c <= LAST_CHAR; c++) {
+                writer.print((int) c + SEPARATOR + renderNumOfTrue(c, pixels, fontName) + "\n");
+            }
+        }
+        System.out.println(file.getPath());
+    }
+}
@@ -0,0 +1,148 @@
+package ascii_output;
+
+import java.io.*;
+import java.util.Random;
+
+/**
+ * Compares the binary format with HTML output, in size and in encoding and decoding throughput, on random
+ * grids of the default digits. Besides HtmlAsciiOutput it measures a minimal HTML page holding one character
+ * per cell, a lower bound on the size of any HTML output.
+ *
+ * @author Aviel Raclaw
+ */
+public class BinaryAsciiBenchmark {
+    // constants
+    private static final String USAGE = "USAGE: java ascii_output.BinaryAsciiBenchmark [directory]";
+    private static final char[] DIGITS = "0123456789".toCharArray();
+    private static final int[][] GRID_SIZES = {{512, 1024}, {32, 64}}; // rows, columns
+    private static final double[] REPEAT_PROBABILITIES = {0, 0.9}; // chance a cell repeats the previous one
+    private static final int MIN_CHARS = 50_000_000; // characters encoded per measurement
+    private static final int WARMUP_ROUNDS = 2;
+    private static final long SEED = 7;
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double CHARS_PER_MILLION = 1e6;
+    private static final String FONT = "Courier New";
+
+    /**
+     * runs the benchmark and prints the results
+     *
+     * @param args optional directory for the output files, the temporary directory by default
+     * @throws IOException if writing or reading a file failed
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 1) {
+            System.err.println(USAGE);
+            return;
+        }
+        File dir = new File(args.length == 1 ? args[0] : System.getProperty("java.io.tmpdir"));
+        String binaryFile = new File(dir, "benchmark.aart").getPath();
+        String htmlFile = new File(dir, "benchmark.html").getPath();
+        String minimalHtmlFile = new File(dir, "benchmark_minimal.html").getPath();
+        Random random = new Random(SEED);
+        for (int[] size : GRID_SIZES) {
+            for (double repeatProbability : REPEAT_PROBABILITIES) {
+                char[][] grid = createGrid(size[0], size[1], repeatProbability, random);
+                int rounds = Math.max(1, MIN_CHARS / (size[0] * size[1]));
+                System.out.printf("%dx%d grid, repeat probability %.1f, %d rounds%n", size[1], size[0],
+                        repeatProbability, rounds);
+                report("binary in memory", grid, rounds, null, () -> BinaryAsciiOutput.write(grid, null,
+                        new ByteArrayOutputStream()));
+                report("binary file", grid, rounds, binaryFile,
+                        () -> new BinaryAsciiOutput(binaryFile).output(grid));
+                report("binary decode", grid, rounds, null, () -> {
+                    try (BinaryAsciiReader reader = new BinaryAsciiReader(binaryFile)) {
+                        reader.readAll();
+                    }
+                });
+                report("HtmlAsciiOutput", grid, rounds, htmlFile,
+                        () -> new HtmlAsciiOutput(htmlFile, FONT).output(grid));
+                report("minimal HTML", grid, rounds, minimalHtmlFile,
+                        () -> writeMinimalHtml(grid, minimalHtmlFile));
+            }
+        }
+    }
+
+    /**
+     * an action that is measured
+     */
+    private interface Action {
+        void run() throws IOException;
+    }
+
+    /**
+     * measures an action and prints its throughput, and the size of the file it wrote
+     *
+     * @param name   name of the action
+     * @param grid   grid the action works on
+     * @param rounds number of times to run the action
+     * @param file   file the action writes, or null for no file
+     * @param action the action
+     * @throws IOException if the action failed
+     */
+    private static void report(String name, char[][] grid, int rounds, String file, Action action)
+            throws IOException {
+        for (int i = 0; i < WARMUP_ROUNDS * rounds; i++) {
+            action.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            action.run();
+        }
+        double seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+        double charsPerSecond = (double) grid.length * grid[0].length * rounds / seconds;
+        String sizeReport = file == null ? "" : ", " + new File(file).length() + " bytes";
+        System.out.printf("  %-17s %7.1fM chars/s%s%n", name, charsPerSecond / CHARS_PER_MILLION,
+                sizeReport);
+    }
+
+    /**
+     * creates a random grid of digits
+     *
+     * @param rows              number of rows
+     * @param cols              number of characters in a row
+     * @param repeatProbability chance a cell repeats the previous cell of its row
+     * @param random            source of randomness
+     * @return the grid
+     */
+    private static char[][] createGrid(int rows, int cols, double repeatProbability, Random random) {
+        char[][] grid = new char[rows][cols];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (col > 0 && random.nextDouble() < repeatProbability) {
+                    grid[row][col] = grid[row][col - 1];
+                } else {
+                    grid[row][col] = DIGITS[random.nextInt(DIGITS.length)];
+                }
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * writes a minimal HTML page with one character per cell, escaping HTML special characters
+     *
+     * @param grid     the art
+     * @param fileName file to write to
+     * @throws IOException if writing failed
+     */
+    private static void writeMinimalHtml(char[][] grid, String fileName) throws IOException {
+        try (Writer writer = new BufferedWriter(new FileWriter(fileName))) {
+            writer.write("<html><body><pre style=\"font-family:'" + FONT + "'\">\n");
+            for (char[] row : grid) {
+                for (char c : row) {
+                    if (c == '<') {
+                        writer.write("&lt;");
+                    } else if (c == '>') {
+                        writer.write("&gt;");
+                    } else if (c == '&') {
+                        writer.write("&amp;");
+                    } else {
+                        writer.write(c);
+                    }
+                }
+                writer.write("<br>\n");
+            }
+            writer.write("</pre></body></html>");
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package ascii_output;
+
+import java.awt.*;
+import java.io.*;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Writes ASCII art to a compact binary file.
+ * The file starts with a header holding the dimensions and the palette (the distinct characters of the art),
+ * followed by a table of row offsets and then the rows. Each row stores the palette index of each character
+ * packed at the minimal number of bits for the palette size, or run-length encoded if that is smaller, and
+ * optionally the color of each character. Rows are independent, so a range of rows can be read without
+ * reading the whole file, see {@link BinaryAsciiReader}.
+ *
+ * @author Aviel Raclaw
+ */
+public class BinaryAsciiOutput implements AsciiOutput {
+    // constants
+    public static final int MAGIC = 0x41415254; // "AART"
+    public static final int VERSION = 1;
+    public static final int COLOR_FLAG = 1;
+    public static final int PACKED_ROW = 0;
+    public static final int RLE_ROW = 1;
+    public static final int BITS_IN_BYTE = 8;
+    public static final int RGB_BYTES = 3;
+    public static final int VARINT_BITS = 7;
+    public static final int VARINT_MASK = 0x7F;
+    public static final int VARINT_CONTINUE = 0x80;
+    public static final int BYTE_MASK = 0xFF;
+    private static final String WRITE_ERR_MSG = "Failed to write binary ASCII art to ";
+    private static final int ASCII_SIZE = 128;
+
+    // fields
+    private final String fileName;
+    private final Color[][] colors;
+
+    /**
+     * the distinct characters of an art, and their indices
+     */
+    private static final class Palette {
+        private final char[] chars; // sorted
+        private final int[] asciiIndex = new int[ASCII_SIZE]; // index of each ASCII character in chars
+
+        private Palette(char[] chars) {
+            this.chars = chars;
+            for (int i = 0; i < chars.length && chars[i] < ASCII_SIZE; i++) {
+                asciiIndex[chars[i]] = i;
+            }
+        }
+
+        private int indexOf(char c) {
+            return c < ASCII_SIZE ? asciiIndex[c] : Arrays.binarySearch(chars, c);
+        }
+    }
+
+    /**
+     * constructor
+     *
+     * @param fileName file to write to
+     */
+    public BinaryAsciiOutput(String fileName) {
+        this(fileName, null);
+    }
+
+    /**
+     * constructor, for art with a color plane
+     *
+     * @param fileName file to write to
+     * @param colors   color of each character, same dimensions as the art, or null for no color plane
+     */
+    public BinaryAsciiOutput(String fileName, Color[][] colors) {
+        this.fileName = fileName;
+        this.colors = colors;
+    }
+
+    @Override
+    public void output(char[][] chars) {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(fileName))) {
+            write(chars, colors, out);
+        } catch (IOException ioe) {
+            Logger.getGlobal().severe(WRITE_ERR_MSG + fileName);
+        }
+    }
+
+    /**
+     * writes ASCII art in the binary format
+     *
+     * @param chars  the art
+     * @param colors color of each character, or null for no color plane
+     * @param out    stream to write to
+     * @throws IOException if writing failed
+     */
+    public static void write(char[][] chars, Color[][] colors, OutputStream out) throws IOException {
+        int numRows = chars.length;
+        int numCols = numRows == 0 ? 0 : chars[0].length;
+        Palette palette = getPalette(chars);
+        int bitsPerSymbol = getBitsPerSymbol(palette.chars.length);
+
+        byte[][] rows = new byte[numRows][];
+        for (int row = 0; row < numRows; row++) {
+            rows[row] = encodeRow(chars[row], colors == null ? null : colors[row], palette, bitsPerSymbol);
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeByte(colors == null ? 0 : COLOR_FLAG);
+        data.writeInt(numRows);
+        data.writeInt(numCols);
+        data.writeByte(bitsPerSymbol);
+        data.writeInt(palette.chars.length);
+        for (char c : palette.chars) {
+            data.writeChar(c);
+        }
+        long offset = 0; // offsets are relative to the end of the offset table
+        for (byte[] row : rows) {
+            data.writeLong(offset);
+            offset += row.length;
+        }
+        data.writeLong(offset);
+        for (byte[] row : rows) {
+            data.write(row);
+        }
+        data.flush();
+    }
+
+    /**
+     * gets the distinct characters of the art. ASCII characters are collected in a small table, other
+     * characters are sorted and deduplicated.
+     *
+     * @param chars the art
+     * @return palette of the sorted distinct characters
+     */
+    private static Palette getPalette(char[][] chars) {
+        boolean[] asciiUsed = new boolean[ASCII_SIZE];
+        char[] others = new char[0]; // non-ASCII characters, with duplicates
+        int numOthers = 0;
+        for (char[] row : chars) {
+            for (char c : row) {
+                if (c < ASCII_SIZE) {
+                    asciiUsed[c] = true;
+                } else {
+                    if (numOthers == others.length) {
+                        others = Arrays.copyOf(others, Math.max(ASCII_SIZE, others.length * 2));
+                    }
+                    others[numOthers++] = c;
+                }
+            }
+        }
+        Arrays.sort(others, 0, numOthers);
+        char[] palette = new char[ASCII_SIZE + numOthers];
+        int paletteSize = 0;
+        for (char c = 0; c < ASCII_SIZE; c++) {
+            if (asciiUsed[c]) {
+                palette[paletteSize++] = c;
+            }
+        }
+        for (int i = 0; i < numOthers; i++) {
+            if (i == 0 || others[i] != others[i - 1]) {
+                palette[paletteSize++] = others[i];
+            }
+        }
+        return new Palette(Arrays.copyOf(palette, paletteSize));
+    }
+
+    /**
+     * gets the minimal number of bits that can hold every palette index
+     *
+     * @param paletteSize number of characters in palette
+     * @return bits per symbol, at least 1
+     */
+    static int getBitsPerSymbol(int paletteSize) {
+        int bits = 1;
+        while ((1 << bits) < paletteSize) {
+            bits++;
+        }
+        return bits;
+    }
+
+    /**
+     * encodes a row, packed or run-length encoded, whichever is smaller, followed by its colors
+     *
+     * @param row           characters of the row
+     * @param colors        colors of the row, or null
+     * @param palette       palette of the art
+     * @param bitsPerSymbol bits per palette index
+     * @return encoded row
+     */
+    private static byte[] encodeRow(char[] row, Color[] colors, Palette palette, int bitsPerSymbol) {
+        int packedLength = (row.length * bitsPerSymbol + BITS_IN_BYTE - 1) / BITS_IN_BYTE;
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        if (getRunLengthEncodedLength(row, bitsPerSymbol) < packedLength) {
+            encoded.write(RLE_ROW);
+            runLengthEncodeRow(row, palette, bitsPerSymbol, encoded);
+        } else {
+            encoded.write(PACKED_ROW);
+            encoded.writeBytes(packRow(row, palette, bitsPerSymbol, packedLength));
+        }
+        if (colors != null) {
+            for (Color color : colors) {
+                encoded.write(color.getRed());
+                encoded.write(color.getGreen());
+                encoded.write(color.getBlue());
+            }
+        }
+        return encoded.toByteArray();
+    }
+
+    /**
+     * packs the palette indices of a row at bitsPerSymbol bits each, most significant bit first
+     *
+     * @param row           characters of the row
+     * @param palette       palette of the art
+     * @param bitsPerSymbol bits per palette index
+     * @param packedLength  length in bytes of the packed row
+     * @return packed row, padded to a whole byte
+     */
+    private static byte[] packRow(char[] row, Palette palette, int bitsPerSymbol, int packedLength) {
+        byte[] packed = new byte[packedLength];
+        int buffer = 0, bufferedBits = 0, ind = 0; // bits not yet written are the lowest bufferedBits bits
+        for (char c : row) {
+            buffer = (buffer << bitsPerSymbol) | palette.indexOf(c);
+            bufferedBits += bitsPerSymbol;
+            while (bufferedBits >= BITS_IN_BYTE) {
+                bufferedBits -= BITS_IN_BYTE;
+                packed[ind] = (byte) (buffer >> bufferedBits);
+                ind++;
+            }
+        }
+        if (bufferedBits > 0) { // pad last byte with zeros
+            packed[ind] = (byte) (buffer << (BITS_IN_BYTE - bufferedBits));
+        }
+        return packed;
+    }
+
+    /**
+     * calculates the length of a row if it were run-length encoded, without encoding it
+     *
+     * @param row           characters of the row
+     * @param bitsPerSymbol bits per palette index
+     * @return length in bytes of the run-length encoded row
+     */
+    private static int getRunLengthEncodedLength(char[] row, int bitsPerSymbol) {
+        int symbolBytes = (bitsPerSymbol + BITS_IN_BYTE - 1) / BITS_IN_BYTE;
+        int length = 0;
+        int col = 0;
+        while (col < row.length) {
+            int runLength = 1;
+            while (col + runLength < row.length && row[col + runLength] == row[col]) {
+                runLength++;
+            }
+            for (int value = runLength; value > VARINT_MASK; value >>>= VARINT_BITS) {
+                length++;
+            }
+            length += 1 + symbolBytes;
+            col += runLength;
+        }
+        return length;
+    }
+
+    /**
+     * run-length encodes a row as pairs of run length (varint) and palette index (whole bytes)
+     *
+     * @param row           characters of the row
+     * @param palette       palette of the art
+     * @param bitsPerSymbol bits per palette index
+     * @param encoded       stream to write the encoded row to
+     */
+    private static void runLengthEncodeRow(char[] row, Palette palette, int bitsPerSymbol,
+                                           ByteArrayOutputStream encoded) {
+        int symbolBytes = (bitsPerSymbol + BITS_IN_BYTE - 1) / BITS_IN_BYTE;
+        int col = 0;
+        while (col < row.length) {
+            int runLength = 1;
+            while (col + runLength < row.length && row[col + runLength] == row[col]) {
+                runLength++;
+            }
+            for (int value = runLength; ; value >>>= VARINT_BITS) { // run length as varint
+                if (value <= VARINT_MASK) {
+                    encoded.write(value);
+                    break;
+                }
+                encoded.write((value & VARINT_MASK) | VARINT_CONTINUE);
+            }
+            int symbol = palette.indexOf(row[col]);
+            for (int i = symbolBytes - 1; i >= 0; i--) {
+                encoded.write((symbol >> (i * BITS_IN_BYTE)) & BYTE_MASK);
+            }
+            col += runLength;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package ascii_output;
+
+import java.awt.*;
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Reads ASCII art written by {@link BinaryAsciiOutput}.
+ * Only the header and the row offset table are read when opening, so any range of rows can be decoded
+ * without reading the rest of the file.
+ *
+ * @author Aviel Raclaw
+ */
+public class BinaryAsciiReader implements Closeable {
+    // constants
+    private static final String FORMAT_ERR_MSG = "Not a binary ASCII art file: ";
+    private static final String ROWS_ERR_MSG = "Illegal row range ";
+
+    // fields
+    private final RandomAccessFile file;
+    private final boolean hasColors;
+    private final int numRows;
+    private final int numCols;
+    private final int bitsPerSymbol;
+    private final char[] palette;
+    private final long[] rowOffsets; // position of each row in the file, and of the end of the last row
+
+    /**
+     * constructor, reads the header of the file
+     *
+     * @param fileName file to read
+     * @throws IOException if the file could not be read or is not in the binary format
+     */
+    public BinaryAsciiReader(String fileName) throws IOException {
+        file = new RandomAccessFile(fileName, "r");
+        try {
+            if (file.readInt() != BinaryAsciiOutput.MAGIC || file.readByte() != BinaryAsciiOutput.VERSION) {
+                throw new IOException(FORMAT_ERR_MSG + fileName);
+            }
+            hasColors = (file.readByte() & BinaryAsciiOutput.COLOR_FLAG) != 0;
+            numRows = file.readInt();
+            numCols = file.readInt();
+            bitsPerSymbol = file.readByte();
+            palette = new char[file.readInt()];
+            for (int i = 0; i < palette.length; i++) {
+                palette[i] = file.readChar();
+            }
+            byte[] offsetTable = new byte[(numRows + 1) * Long.BYTES];
+            file.readFully(offsetTable);
+            DataInputStream offsets = new DataInputStream(new ByteArrayInputStream(offsetTable));
+            long dataStart = file.getFilePointer();
+            rowOffsets = new long[numRows + 1];
+            for (int row = 0; row <= numRows; row++) {
+                rowOffsets[row] = dataStart + offsets.readLong();
+            }
+        } catch (IOException ioe) {
+            file.close();
+            throw ioe;
+        }
+    }
+
+    /**
+     * @return number of rows in the art
+     */
+    public int getNumRows() {
+        return numRows;
+    }
+
+    /**
+     * @return number of characters in a row
+     */
+    public int getNumCols() {
+        return numCols;
+    }
+
+    /**
+     * @return the distinct characters of the art
+     */
+    public char[] getPalette() {
+        return palette.clone();
+    }
+
+    /**
+     * @return true if the file has a color plane
+     */
+    public boolean hasColors() {
+        return hasColors;
+    }
+
+    /**
+     * reads the whole art
+     *
+     * @return the art
+     * @throws IOException if reading failed
+     */
+    public char[][] readAll() throws IOException {
+        return readRows(0, numRows);
+    }
+
+    /**
+     * reads a range of rows, reading from the file only the bytes of these rows
+     *
+     * @param firstRow first row to read
+     * @param endRow   row after the last row to read
+     * @return the characters of the rows
+     * @throws IOException if reading failed
+     */
+    public char[][] readRows(int firstRow, int endRow) throws IOException {
+        byte[][] rows = readRowBytes(firstRow, endRow);
+        char[][] chars = new char[rows.length][];
+        for (int row = 0; row < rows.length; row++) {
+            chars[row] = decodeRow(rows[row]);
+        }
+        return chars;
+    }
+
+    /**
+     * reads the colors of a range of rows
+     *
+     * @param firstRow first row to read
+     * @param endRow   row after the last row to read
+     * @return the colors of the characters of the rows, or null if the file has no color plane
+     * @throws IOException if reading failed
+     */
+    public Color[][] readColors(int firstRow, int endRow) throws IOException {
+        if (!hasColors) {
+            return null;
+        }
+        byte[][] rows = readRowBytes(firstRow, endRow);
+        Color[][] colors = new Color[rows.length][numCols];
+        for (int row = 0; row < rows.length; row++) {
+            int colorStart = rows[row].length - numCols * BinaryAsciiOutput.RGB_BYTES;
+            for (int col = 0; col < numCols; col++) {
+                int ind = colorStart + col * BinaryAsciiOutput.RGB_BYTES;
+                colors[row][col] = new Color(rows[row][ind] & BinaryAsciiOutput.BYTE_MASK,
+                        rows[row][ind + 1] & BinaryAsciiOutput.BYTE_MASK,
+                        rows[row][ind + 2] & BinaryAsciiOutput.BYTE_MASK);
+            }
+        }
+        return colors;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * reads the encoded bytes of a range of rows with a single read
+     *
+     * @param firstRow first row to read
+     * @param endRow   row after the last row to read
+     * @return encoded bytes of each row
+     * @throws IOException if reading failed
+     */
+    private byte[][] readRowBytes(int firstRow, int endRow) throws IOException {
+        if (firstRow < 0 || endRow > numRows || firstRow > endRow) {
+            throw new IndexOutOfBoundsException(ROWS_ERR_MSG + firstRow + "-" + endRow);
+        }
+        byte[] range = new byte[(int) (rowOffsets[endRow] - rowOffsets[firstRow])];
+        file.seek(rowOffsets[firstRow]);
+        file.readFully(range);
+        byte[][] rows = new byte[endRow - firstRow][];
+        for (int row = firstRow; row < endRow; row++) {
+            int start = (int) (rowOffsets[row] - rowOffsets[firstRow]);
+            int end = (int) (rowOffsets[row + 1] - rowOffsets[firstRow]);
+            rows[row - firstRow] = Arrays.copyOfRange(range, start, end);
+        }
+        return rows;
+    }
+
+    /**
+     * decodes the characters of a row
+     *
+     * @param row encoded row
+     * @return characters of the row
+     */
+    private char[] decodeRow(byte[] row) {
+        char[] chars = new char[numCols];
+        if (row[0] == BinaryAsciiOutput.PACKED_ROW) {
+            int symbolMask = (1 << bitsPerSymbol) - 1;
+            int buffer = 0, bufferedBits = 0, ind = 1; // bits not yet read are the lowest bufferedBits bits
+            for (int col = 0; col < numCols; col++) {
+                while (bufferedBits < bitsPerSymbol) {
+                    buffer = (buffer << BinaryAsciiOutput.BITS_IN_BYTE) |
+                            (row[ind] & BinaryAsciiOutput.BYTE_MASK);
+                    bufferedBits += BinaryAsciiOutput.BITS_IN_BYTE;
+                    ind++;
+                }
+                bufferedBits -= bitsPerSymbol;
+                chars[col] = palette[(buffer >> bufferedBits) & symbolMask];
+            }
+            return chars;
+        }
+        int symbolBytes = (bitsPerSymbol + BinaryAsciiOutput.BITS_IN_BYTE - 1) /
+                BinaryAsciiOutput.BITS_IN_BYTE;
+        int ind = 1, col = 0;
+        while (col < numCols) {
+            int runLength = 0;
+            for (int shift = 0; ; shift += BinaryAsciiOutput.VARINT_BITS) { // run length varint
+                int currentByte = row[ind++] & BinaryAsciiOutput.BYTE_MASK;
+                runLength |= (currentByte & BinaryAsciiOutput.VARINT_MASK) << shift;
+                if ((currentByte & BinaryAsciiOutput.VARINT_CONTINUE) == 0) {
+                    break;
+                }
+            }
+            int symbol = 0;
+            for (int i = 0; i < symbolBytes; i++) {
+                symbol = (symbol << BinaryAsciiOutput.BITS_IN_BYTE) |
+                        (row[ind++] & BinaryAsciiOutput.BYTE_MASK);
+            }
+            for (int end = col + runLength; col < end; col++) {
+                chars[col] = palette[symbol];
+            }
+        }
+        return chars;
+    }
+}
@@ -0,0 +1,21 @@
+#!/bin/sh
+# Compiles the sources into build/ascii_art.jar, with the glyph tables and ascii_art.Driver as Main-Class,
+# and creates the AppCDS archive build/ascii_art.jsa with a training run rendering the given image.
+# USAGE: ./build.sh <training image>
+set -e
+if [ $# -ne 1 ]; then
+    echo "USAGE: ./build.sh <training image>" >&2
+    exit 1
+fi
+SRC=$(dirname "$0")
+BUILD="$SRC/build"
+rm -rf "$BUILD"
+mkdir -p "$BUILD/classes"
+javac -d "$BUILD/classes" $(find "$SRC/ascii_art" "$SRC/ascii_output" "$SRC/image" -name '*.java')
+cp -r "$SRC/ascii_art/img_to_char/glyphs" "$BUILD/classes/ascii_art/img_to_char/"
+jar --create --file "$BUILD/ascii_art.jar" --main-class ascii_art.Driver -C "$BUILD/classes" .
+# training run, the classes it loads are archived when the JVM exits
+printf 'console\nrender\n' > "$BUILD/training.txt"
+java -XX:ArchiveClassesAtExit="$BUILD/ascii_art.jsa" -jar "$BUILD/ascii_art.jar" "$1" "$BUILD/training.txt" \
+    > /dev/null
+echo "Run with: java -XX:SharedArchiveFile=$BUILD/ascii_art.jsa -jar $BUILD/ascii_art.jar <image> [script]"